@@ -0,0 +1,68 @@
+package logs_parser;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+/*
+ * The class collects sets of values from log entries. Lists larger than PARALLEL_THRESHOLD are
+ * processed by all cores: each thread fills its own partial set, bitset of dictionary ids or
+ * enum bitmask, and the partial results are merged at the end without any locking
+ */
+public class Aggregator {
+    public static final int PARALLEL_THRESHOLD = 10_000;
+
+    //returns a set of dictionary values (ips or user names) of the entries matching the filter
+    public static Set<String> toValueSet(List<LogEntry> entries, Predicate<LogEntry> filter,
+                                         ToIntFunction<LogEntry> id, ValueDictionary dictionary) {
+        BitSet ids;
+        if (entries.size() < PARALLEL_THRESHOLD) {
+            ids = new BitSet();
+            for (LogEntry logEntry : entries) {
+                if (filter.test(logEntry)) ids.set(id.applyAsInt(logEntry));
+            }
+        } else {
+            ids = entries.parallelStream()
+                    .filter(filter)
+                    .collect(BitSet::new, (b, e) -> b.set(id.applyAsInt(e)), BitSet::or);
+        }
+
+        Set<String> set = new HashSet<>();
+        for (int i = ids.nextSetBit(0); i >= 0; i = ids.nextSetBit(i + 1)) {
+            set.add(dictionary.getValue(i));
+        }
+        return set;
+    }
+
+    //returns a set of enum values (events or statuses) of the entries matching the filter
+    public static <E extends Enum<E>> Set<E> toEnumSet(List<LogEntry> entries, Predicate<LogEntry> filter,
+                                                       Function<LogEntry, E> mapper, Class<E> type) {
+        long mask;
+        if (entries.size() < PARALLEL_THRESHOLD) {
+            mask = 0;
+            for (LogEntry logEntry : entries) {
+                if (filter.test(logEntry)) mask |= 1L << mapper.apply(logEntry).ordinal();
+            }
+        } else {
+            mask = entries.parallelStream()
+                    .filter(filter)
+                    .mapToLong(e -> 1L << mapper.apply(e).ordinal())
+                    .reduce(0L, (a, b) -> a | b);
+        }
+
+        EnumSet<E> set = EnumSet.noneOf(type);
+        for (E value : type.getEnumConstants()) {
+            if ((mask & 1L << value.ordinal()) != 0) set.add(value);
+        }
+        return set;
+    }
+
+    //returns a set of arbitrary values of the entries matching the filter
+    public static <T> Set<T> toSet(List<LogEntry> entries, Predicate<LogEntry> filter, Function<LogEntry, T> mapper) {
+        return (entries.size() < PARALLEL_THRESHOLD ? entries.stream() : entries.parallelStream())
+                .filter(filter)
+                .map(mapper)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,249 @@
+package logs_parser;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+/*
+ * The class describes a query which can be evaluated together with other queries
+ * in a single pass over log entries (see LogParser.executeBatch).
+ * Each query has its own period and creates its own accumulator of the result
+ */
+public class BatchQuery<T> {
+    private final Date after;
+    private final Date before;
+    private final Supplier<Accumulator<T>> accumulator;
+
+    public BatchQuery(Date after, Date before, Supplier<Accumulator<T>> accumulator) {
+        this.after = after;
+        this.before = before;
+        this.accumulator = accumulator;
+    }
+
+    //returns a query which reads no log entries and whose result is null, e.g. an invalid QL query
+    public static <T> BatchQuery<T> none() {
+        return new BatchQuery<>(null, null, null);
+    }
+
+    //receives log entries of the query period and builds the query result
+    public interface Accumulator<T> {
+        void accept(LogEntry logEntry);
+
+        T getResult();
+    }
+
+    public Date getAfter() {
+        return after;
+    }
+
+    public Date getBefore() {
+        return before;
+    }
+
+    public Accumulator<T> newAccumulator() {
+        return accumulator.get();
+    }
+
+    //returns true if the query reads no log entries, such a query does not take part in the scan
+    public boolean isNone() {
+        return accumulator == null;
+    }
+
+    //returns a query of a set of unique values of the log entries matching the filter
+    public static <V> BatchQuery<Set<V>> set(Date after, Date before, Predicate<LogEntry> filter, Function<LogEntry, V> mapper) {
+        return new BatchQuery<>(after, before, () -> new Accumulator<Set<V>>() {
+            private final Set<V> set = new HashSet<>();
+
+            @Override
+            public void accept(LogEntry logEntry) {
+                if (filter.test(logEntry)) set.add(mapper.apply(logEntry));
+            }
+
+            @Override
+            public Set<V> getResult() {
+                return set;
+            }
+        });
+    }
+
+    //returns a query of the amount of unique values of the log entries matching the filter
+    public static BatchQuery<Integer> countUnique(Date after, Date before, Predicate<LogEntry> filter, Function<LogEntry, ?> mapper) {
+        return new BatchQuery<>(after, before, () -> new Accumulator<Integer>() {
+            private final Set<Object> set = new HashSet<>();
+
+            @Override
+            public void accept(LogEntry logEntry) {
+                if (filter.test(logEntry)) set.add(mapper.apply(logEntry));
+            }
+
+            @Override
+            public Integer getResult() {
+                return set.size();
+            }
+        });
+    }
+
+    //returns a query of the amount of the log entries matching the filter
+    public static BatchQuery<Integer> count(Date after, Date before, Predicate<LogEntry> filter) {
+        return new BatchQuery<>(after, before, () -> new Accumulator<Integer>() {
+            private int count;
+
+            @Override
+            public void accept(LogEntry logEntry) {
+                if (filter.test(logEntry)) count++;
+            }
+
+            @Override
+            public Integer getResult() {
+                return count;
+            }
+        });
+    }
+
+    //returns a query of the earliest date of the log entries matching the filter or null
+    public static BatchQuery<Date> firstDate(Date after, Date before, Predicate<LogEntry> filter) {
+        return new BatchQuery<>(after, before, () -> new Accumulator<Date>() {
+            private Date date;
+
+            @Override
+            public void accept(LogEntry logEntry) {
+                if (filter.test(logEntry) && (date == null || logEntry.getDate().before(date))) date = logEntry.getDate();
+            }
+
+            @Override
+            public Date getResult() {
+                return date;
+            }
+        });
+    }
+
+    //returns a query of a map of task numbers and amounts of log entries with the event for each task,
+    //the same as getAllSolvedTasksAndTheirNumber and getAllDoneTasksAndTheirNumber
+    public static BatchQuery<Map<Integer, Integer>> taskCounts(Date after, Date before, Event event) {
+        return new BatchQuery<>(after, before, () -> new Accumulator<Map<Integer, Integer>>() {
+            private final Map<Integer, Integer> map = new HashMap<>();
+
+            @Override
+            public void accept(LogEntry logEntry) {
+                if (logEntry.getEvent() == event) map.merge(logEntry.getTaskNumber(), 1, Integer::sum);
+            }
+
+            @Override
+            public Map<Integer, Integer> getResult() {
+                return map;
+            }
+        });
+    }
+
+    //returns a query evaluating the QL query, the result is the same as of LogParser.execute
+    public static BatchQuery<Set<Object>> ql(String query, LogParser parser) {
+        QLStatement statement = QLStatement.parse(query, parser);
+        if (!statement.isValid()) return none();
+        return set(statement.getAfter(), statement.getBefore(), statement::matches, statement::select);
+    }
+
+    //the same as getNumberOfUniqueIPs
+    public static BatchQuery<Integer> numberOfUniqueIPs(Date after, Date before) {
+        return countUnique(after, before, e -> true, LogEntry::getIp);
+    }
+
+    //the same as getUniqueIPs
+    public static BatchQuery<Set<String>> uniqueIPs(Date after, Date before) {
+        return set(after, before, e -> true, LogEntry::getIp);
+    }
+
+    //the same as getIPsForUser
+    public static BatchQuery<Set<String>> ipsForUser(String user, Date after, Date before) {
+        return set(after, before, e -> e.getName().equals(user), LogEntry::getIp);
+    }
+
+    //the same as getIPsForEvent
+    public static BatchQuery<Set<String>> ipsForEvent(Event event, Date after, Date before) {
+        return set(after, before, e -> e.getEvent() == event, LogEntry::getIp);
+    }
+
+    //the same as getIPsForStatus
+    public static BatchQuery<Set<String>> ipsForStatus(Status status, Date after, Date before) {
+        return set(after, before, e -> e.getStatus() == status, LogEntry::getIp);
+    }
+
+    //the same as getAllUsers
+    public static BatchQuery<Set<String>> allUsers() {
+        return set(null, null, e -> true, LogEntry::getName);
+    }
+
+    //the same as getNumberOfUsers
+    public static BatchQuery<Integer> numberOfUsers(Date after, Date before) {
+        return countUnique(after, before, e -> true, LogEntry::getName);
+    }
+
+    //the same as getNumberOfUserEvents
+    public static BatchQuery<Integer> numberOfUserEvents(String user, Date after, Date before) {
+        return countUnique(after, before, e -> e.getName().equals(user), LogEntry::getEvent);
+    }
+
+    //the same as getUsersForIP
+    public static BatchQuery<Set<String>> usersForIP(String ip, Date after, Date before) {
+        return set(after, before, e -> e.getIp().equals(ip), LogEntry::getName);
+    }
+
+    //the same as getLoggedUsers, getDownloadedPluginUsers, getWroteMessageUsers, getSolvedTaskUsers and getDoneTaskUsers
+    public static BatchQuery<Set<String>> usersForEvent(Event event, Date after, Date before) {
+        return set(after, before, e -> e.getEvent() == event, LogEntry::getName);
+    }
+
+    //the same as getSolvedTaskUsers and getDoneTaskUsers for the task
+    public static BatchQuery<Set<String>> usersForTask(Event event, int task, Date after, Date before) {
+        return set(after, before, e -> e.getEvent() == event && e.getTaskNumber() != 0 && e.getTaskNumber() == task, LogEntry::getName);
+    }
+
+    //the same as getDatesForUserAndEvent, getDatesWhenUserWroteMessage and getDatesWhenUserDownloadedPlugin
+    public static BatchQuery<Set<Date>> datesForUserAndEvent(String user, Event event, Date after, Date before) {
+        return set(after, before, e -> e.getName().equals(user) && e.getEvent() == event, LogEntry::getDate);
+    }
+
+    //the same as getDatesWhenSomethingFailed and getDatesWhenErrorHappened
+    public static BatchQuery<Set<Date>> datesForStatus(Status status, Date after, Date before) {
+        return set(after, before, e -> e.getStatus() == status, LogEntry::getDate);
+    }
+
+    //the same as getDateWhenUserLoggedFirstTime
+    public static BatchQuery<Date> firstDateForUserAndEvent(String user, Event event, Date after, Date before) {
+        return firstDate(after, before, e -> e.getName().equals(user) && e.getEvent() == event);
+    }
+
+    //the same as getDateWhenUserSolvedTask and getDateWhenUserDoneTask
+    public static BatchQuery<Date> firstDateForUserAndTask(String user, Event event, int task, Date after, Date before) {
+        return firstDate(after, before, e -> e.getName().equals(user) && e.getEvent() == event && e.getTaskNumber() == task);
+    }
+
+    //the same as getNumberOfAllEvents
+    public static BatchQuery<Integer> numberOfAllEvents(Date after, Date before) {
+        return countUnique(after, before, e -> true, LogEntry::getEvent);
+    }
+
+    //the same as getAllEvents
+    public static BatchQuery<Set<Event>> allEvents(Date after, Date before) {
+        return set(after, before, e -> true, LogEntry::getEvent);
+    }
+
+    //the same as getEventsForIP
+    public static BatchQuery<Set<Event>> eventsForIP(String ip, Date after, Date before) {
+        return set(after, before, e -> e.getIp().equals(ip), LogEntry::getEvent);
+    }
+
+    //the same as getEventsForUser
+    public static BatchQuery<Set<Event>> eventsForUser(String user, Date after, Date before) {
+        return set(after, before, e -> e.getName().equals(user), LogEntry::getEvent);
+    }
+
+    //the same as getFailedEvents and getErrorEvents
+    public static BatchQuery<Set<Event>> eventsForStatus(Status status, Date after, Date before) {
+        return set(after, before, e -> e.getStatus() == status, LogEntry::getEvent);
+    }
+
+    //the same as getNumberOfAttemptToSolveTask and getNumberOfSuccessfulAttemptToSolveTask
+    public static BatchQuery<Integer> numberOfAttempts(Event event, int task, Date after, Date before) {
+        return count(after, before, e -> e.getTaskNumber() == task && e.getEvent() == event);
+    }
+}
@@ -0,0 +1,30 @@
+package logs_parser;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+/*
+ * The class contains results of queries evaluated by LogParser.executeBatch,
+ * each result is read by its query and has the type of the query
+ */
+public class BatchResult {
+    private final Map<BatchQuery<?>, Object> results = new IdentityHashMap<>();
+
+    void put(BatchQuery<?> query, Object result) {
+        results.put(query, result);
+    }
+
+    //returns the result of the query, the query has to be one of the evaluated queries
+    @SuppressWarnings("unchecked")
+    public <T> T get(BatchQuery<T> query) {
+        if (!results.containsKey(query)) throw new IllegalArgumentException("the query was not evaluated");
+        return (T) results.get(query);
+    }
+
+    public boolean contains(BatchQuery<?> query) {
+        return results.containsKey(query);
+    }
+
+    public int size() {
+        return results.size();
+    }
+}
@@ -0,0 +1,47 @@
+package logs_parser;
+
+import java.util.BitSet;
+/*
+ * The class is a compact probabilistic set of values: mightContain never returns false
+ * for an added value and returns true for an absent value with a probability of about 1%
+ */
+public class BloomFilter {
+    private static final int BITS_PER_VALUE = 10;
+    private static final int HASHES = 7;
+
+    private final BitSet bits;
+    private final int size;
+
+    //creates a filter for the expected amount of distinct values
+    public BloomFilter(int expectedValues) {
+        this.size = Math.max(64, expectedValues * BITS_PER_VALUE);
+        this.bits = new BitSet(size);
+    }
+
+    public void add(Object value) {
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            bits.set(Math.floorMod(h1 + i * h2, size));
+        }
+    }
+
+    public boolean mightContain(Object value) {
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            if (!bits.get(Math.floorMod(h1 + i * h2, size))) return false;
+        }
+        return true;
+    }
+
+    //returns the second hash derived from the first one, it is always odd
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
@@ -7,6 +7,8 @@ import java.util.Date;
 public class LogEntry {
     private String ip;
     private String name;
+    private int ipId;
+    private int nameId;
     private Date date;
     private Event event;
     private int taskNumber;
@@ -20,6 +22,14 @@ public class LogEntry {
         this.name = name;
     }
 
+    public void setIpId(int ipId) {
+        this.ipId = ipId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
+
     public void setDate(Date date) {
         this.date = date;
     }
@@ -44,6 +54,14 @@ public class LogEntry {
         return name;
     }
 
+    public int getIpId() {
+        return ipId;
+    }
+
+    public int getNameId() {
+        return nameId;
+    }
+
     public Date getDate() {
         return date;
     }
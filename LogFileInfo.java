@@ -0,0 +1,57 @@
+package logs_parser;
+
+import java.nio.file.Path;
+import java.util.Date;
+/*
+ * The class contains metadata of a single *.log file: the earliest and the latest log dates
+ * the amount of parsed log entries and Bloom filters over its values
+ */
+public class LogFileInfo {
+    private final Path path;
+    private Date minDate;
+    private Date maxDate;
+    private int size;
+    private ValueFilters filters;
+
+    public LogFileInfo(Path path) {
+        this.path = path;
+    }
+
+    //takes into account the date of the next log entry read from the file
+    public void add(Date date) {
+        if (minDate == null || date.before(minDate)) minDate = date;
+        if (maxDate == null || date.after(maxDate)) maxDate = date;
+        size++;
+    }
+
+    //returns true if the file may contain log entries enclosed between specified dates
+    public boolean overlaps(Date after, Date before) {
+        return size > 0
+                && (after == null || maxDate.after(after))
+                && (before == null || minDate.before(before));
+    }
+
+    public void setFilters(ValueFilters filters) {
+        this.filters = filters;
+    }
+
+    public ValueFilters getFilters() {
+        return filters;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Date getMinDate() {
+        return minDate;
+    }
+
+    public Date getMaxDate() {
+        return maxDate;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
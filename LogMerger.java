@@ -0,0 +1,268 @@
+package logs_parser;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.*;
+/*
+ * The class merges *.log files from logDir directory into one chronologically ordered stream
+ * using bounded memory. Files which are already ordered are merged as they are, other files are
+ * split into sorted runs of at most maxEntries lines spilled to temporary files.
+ * All runs are then merged k-way, at most MAX_FAN_IN runs at a time
+ */
+public class LogMerger {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    public static final int MAX_FAN_IN = 64;
+
+    private final Path logDir;
+    private final LogStore store;
+    private final int maxEntries;
+
+    public LogMerger(Path logDir, LogStore store, int maxEntries) {
+        this.logDir = logDir;
+        this.store = store;
+        this.maxEntries = maxEntries;
+    }
+
+    //returns an iterator over all log entries enclosed between specified dates in chronological order,
+    //temporary files are deleted when the iterator is exhausted or closed
+    public MergeIterator iterator(Date after, Date before) throws IOException {
+        Path tempDir = Files.createTempDirectory("log-merge");
+        try {
+            List<Path> runs = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDir)) {
+                for (Path file : stream) {
+                    if (file.getFileName().toString().endsWith(".log")) {
+                        if (isSorted(file)) runs.add(file);
+                        else runs.addAll(spillRuns(file, tempDir));
+                    }
+                }
+            }
+            while (runs.size() > MAX_FAN_IN) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                    Path run = Files.createTempFile(tempDir, "run", ".log");
+                    try (MergeIterator iterator = new MergeIterator(runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size())), null, null, null);
+                         BufferedWriter out = LogStore.newWriter(run)) {
+                        while (iterator.hasNext()) {
+                            out.write(iterator.nextLine());
+                            out.newLine();
+                        }
+                    }
+                    merged.add(run);
+                }
+                for (Path run : runs) {
+                    if (run.startsWith(tempDir)) Files.delete(run);
+                }
+                runs = merged;
+            }
+            return new MergeIterator(runs, after, before, tempDir);
+        } catch (IOException | RuntimeException e) {
+            deleteDirectory(tempDir);
+            throw e;
+        }
+    }
+
+    //writes all log lines enclosed between specified dates to the file in chronological order
+    public void export(Path out, Date after, Date before) throws IOException {
+        try (MergeIterator iterator = iterator(after, before);
+             BufferedWriter writer = LogStore.newWriter(out)) {
+            while (iterator.hasNext()) {
+                writer.write(iterator.nextLine());
+                writer.newLine();
+            }
+        }
+    }
+
+    //returns true if the file lines are already in chronological order
+    private boolean isSorted(Path file) throws IOException {
+        try (BufferedReader in = LogStore.newReader(file)) {
+            Date previous = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                LogEntry entry = readEntry(line);
+                if (entry == null) continue;
+                if (previous != null && entry.getDate().before(previous)) return false;
+                previous = entry.getDate();
+            }
+        }
+        return true;
+    }
+
+    //splits the file into sorted runs of at most maxEntries lines
+    private List<Path> spillRuns(Path file, Path tempDir) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        List<Record> chunk = new ArrayList<>();
+        try (BufferedReader in = LogStore.newReader(file)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                LogEntry entry = readEntry(line);
+                if (entry == null) continue;
+                chunk.add(new Record(line, entry));
+                if (chunk.size() >= maxEntries) {
+                    runs.add(spill(chunk, tempDir));
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) runs.add(spill(chunk, tempDir));
+        return runs;
+    }
+
+    private static Path spill(List<Record> chunk, Path tempDir) throws IOException {
+        chunk.sort(Comparator.comparing(r -> r.entry.getDate()));
+        Path run = Files.createTempFile(tempDir, "run", ".log");
+        try (BufferedWriter out = LogStore.newWriter(run)) {
+            for (Record record : chunk) {
+                out.write(record.line);
+                out.newLine();
+            }
+        }
+        return run;
+    }
+
+    //returns the log entry of the line or null if the line can not be parsed
+    private LogEntry readEntry(String line) {
+        try {
+            return store.parseLine(line);
+        } catch (ParseException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void deleteDirectory(Path dir) {
+        if (dir == null) return;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        } catch (IOException ignored) {}
+    }
+
+    //a log line with its parsed entry
+    private static class Record {
+        private final String line;
+        private final LogEntry entry;
+
+        private Record(String line, LogEntry entry) {
+            this.line = line;
+            this.entry = entry;
+        }
+    }
+
+    //the next unread line of a sorted run
+    private class RunReader {
+        private final BufferedReader in;
+        private final int index;
+        private String line;
+        private LogEntry entry;
+
+        private RunReader(Path run, int index) throws IOException {
+            this.in = LogStore.newReader(run);
+            this.index = index;
+        }
+
+        //reads the next parsable line, returns false at the end of the run
+        private boolean advance() throws IOException {
+            while ((line = in.readLine()) != null) {
+                try {
+                    entry = store.parseLine(line);
+                    return true;
+                } catch (ParseException | RuntimeException ignored) {}
+            }
+            entry = null;
+            return false;
+        }
+    }
+
+    //iterates over log entries of sorted runs in chronological order keeping one entry of each run in memory
+    public class MergeIterator implements Iterator<LogEntry>, Closeable {
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Comparator.comparing((RunReader r) -> r.entry.getDate()).thenComparingInt(r -> r.index));
+        private final List<RunReader> readers = new ArrayList<>();
+        private final Date after;
+        private final Date before;
+        private final Path tempDir;
+        private RunReader next;
+
+        private MergeIterator(List<Path> runs, Date after, Date before, Path tempDir) throws IOException {
+            this.after = after;
+            this.before = before;
+            this.tempDir = tempDir;
+            try {
+                for (Path run : runs) {
+                    RunReader reader = new RunReader(run, readers.size());
+                    readers.add(reader);
+                    if (reader.advance()) queue.add(reader);
+                }
+                findNext();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public LogEntry next() {
+            return take().entry;
+        }
+
+        //returns the next log line as it is written in the file
+        public String nextLine() {
+            return take().line;
+        }
+
+        //removes the temporary files of the runs
+        @Override
+        public void close() {
+            for (RunReader reader : readers) {
+                try {
+                    reader.in.close();
+                } catch (IOException ignored) {}
+            }
+            readers.clear();
+            queue.clear();
+            next = null;
+            deleteDirectory(tempDir);
+        }
+
+        //returns the current entry of the run and moves the iterator forward
+        private Record take() {
+            if (next == null) throw new NoSuchElementException();
+            Record record = new Record(next.line, next.entry);
+            try {
+                if (next.advance()) queue.add(next);
+                findNext();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            return record;
+        }
+
+        //finds the next entry within the period, the rest of the runs are skipped after the period
+        private void findNext() throws IOException {
+            next = null;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                Date date = reader.entry.getDate();
+                if (before != null && !date.before(before)) {
+                    queue.clear();
+                    break;
+                }
+                if (after == null || date.after(after)) {
+                    next = reader;
+                    return;
+                }
+                if (reader.advance()) queue.add(reader);
+            }
+            close();
+        }
+    }
+}
@@ -3,62 +3,72 @@ package logs_parser;
 import logs_parser.query.*;
 import org.apache.commons.collections4.list.TreeList;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 /*
  * The class parses *.log files from logDir directory
  */
-public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQuery {
+public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQuery, SessionQuery {
     private Path logDir;
+    private LogStore store;
     public LogParser(Path logDir) {
         this.logDir = logDir;
+        this.store = new LogStore(logDir);
     }
     private SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
 
     //the method returns a list of all log entries enclosed between specified dates inclusive
-    //from all files in logDir directory
+    //from all files in logDir directory, daily partitions outside of the period are skipped
     public List<LogEntry> getEntriesByDate(Date after, Date before) {
-        List<LogEntry> entriesByDate = new ArrayList<>();
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDir)) {
-
-                for (Path entry : stream) {
-                    if (entry.getFileName().toString().endsWith(".log")) {
-                        try (BufferedReader in = new BufferedReader(new FileReader(entry.toString()))) {
-                            while (in.ready()) {
-                                String[] params = in.readLine().split("\t");
-                                LogEntry logEntry = new LogEntry();
-                                logEntry.setIp(params[0]);
-                                logEntry.setName(params[1]);
-                                logEntry.setDate(sdf.parse(params[2]));
-
-                                if (params[3].contains(" ")
-                                        && (params[3].contains("SOLVE_TASK") || params[3].contains("DONE_TASK"))) {
-                                    String[] tempArr = params[3].split(" ");
-                                    logEntry.setEvent(Event.valueOf(tempArr[0]));
-                                    logEntry.setTaskNumber(Integer.parseInt(tempArr[1]));
-                                } else {
-                                    logEntry.setEvent(Event.valueOf(params[3]));
-                                }
-                                logEntry.setStatus(Status.valueOf(params[4]));
-                                entriesByDate.add(logEntry);
-                            }
-                        }
-                    }
-                }
-            } catch (IOException | ParseException ignored) {}
+        return store.getEntries(after, before);
+    }
+
+    //returns an iterator over all log entries enclosed between specified dates in chronological order,
+    //files are merged from disk in bounded memory, so the logs may be larger than the heap
+    public LogMerger.MergeIterator iterateChronologically(Date after, Date before) throws IOException {
+        return new LogMerger(logDir, store, LogMerger.DEFAULT_MAX_ENTRIES).iterator(after, before);
+    }
+
+    //writes all log lines enclosed between specified dates from all files in logDir directory
+    //to the file in chronological order
+    public void exportChronologically(Path out, Date after, Date before) throws IOException {
+        new LogMerger(logDir, store, LogMerger.DEFAULT_MAX_ENTRIES).export(out, after, before);
+    }
+
+    //reads all files from logDir directory in advance, otherwise they are read by the first query
+    public void load() {
+        store.load();
+    }
+
+    //the same as getEntriesByDate skipping partitions and files whose Bloom filters do not contain the user
+    private List<LogEntry> getEntriesForUser(String user, Date after, Date before) {
+        return store.getEntries(after, before, filters -> filters.mightContainUser(user));
+    }
+
+    //the same as getEntriesByDate skipping partitions and files whose Bloom filters do not contain the ip
+    private List<LogEntry> getEntriesForIP(String ip, Date after, Date before) {
+        return store.getEntries(after, before, filters -> filters.mightContainIp(ip));
+    }
+
+    //the same as getEntriesByDate skipping partitions and files whose Bloom filters do not contain the task
+    private List<LogEntry> getEntriesForTask(int task, Date after, Date before) {
+        return store.getEntries(after, before, filters -> filters.mightContainTask(task));
+    }
 
-        entriesByDate.removeIf(logEntry -> !((after == null || logEntry.getDate().after(after))
-                && (before == null || logEntry.getDate().before(before))));
+    //drops from memory the log entries of all days before the specified date,
+    //they are read from logDir directory again when a query needs them
+    public void evictEntriesBefore(Date date) {
+        store.evictBefore(date);
+    }
 
-        return entriesByDate;
+    //forgets all read log entries, logDir directory is read again by the next query
+    public void refresh() {
+        store.reload();
     }
 
     //returns the amount of all unique IPs from all log entries enclosed between specified dates inclusive
@@ -70,209 +80,135 @@ public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQ
     //returns a set of all unique IPs from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getUniqueIPs(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .map(LogEntry::getIp)
-                .collect(Collectors.toSet());
+        return collectIPs(getEntriesByDate(after, before), e -> true);
     }
 
     //returns a set of all unique IPs that belonged to the specified user
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getIPsForUser(String user, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getName().equals(user))
-                .map(LogEntry::getIp)
-                .collect(Collectors.toSet());
+        return collectIPs(getEntriesForUser(user, after, before), e -> e.getName().equals(user));
     }
 
     //returns a set of all unique IPs that belonged to the log with the specified event
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getIPsForEvent(Event event, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getEvent().equals(event))
-                .map(LogEntry::getIp)
-                .collect(Collectors.toSet());
+        return collectIPs(getEntriesByDate(after, before), e -> e.getEvent().equals(event));
     }
 
     //returns a set of all unique IPs which belong to the log with the specified status
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getIPsForStatus(Status status, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getStatus().equals(status))
-                .map(LogEntry::getIp)
-                .collect(Collectors.toSet());
+        return collectIPs(getEntriesByDate(after, before), e -> e.getStatus().equals(status));
     }
 
     //returns a set of all usernames from all *.log files
     @Override
     public Set<String> getAllUsers() {
-        return getEntriesByDate(null, null)
-                .stream()
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesByDate(null, null), e -> true);
     }
 
     //returns the amount of all unique usernames from all log entries enclosed between specified dates inclusive
     @Override
     public int getNumberOfUsers(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet()).size();
+        return collectUsers(getEntriesByDate(after, before), e -> true).size();
     }
 
     //returns the amount of all unique events which belong to the specified user
     //from all log entries enclosed between specified dates inclusive
     @Override
     public int getNumberOfUserEvents(String user, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getName().equals(user))
-                .map(LogEntry::getEvent)
-                .collect(Collectors.toSet())
-                .size();
+        return collectEvents(getEntriesForUser(user, after, before), e -> e.getName().equals(user)).size();
     }
 
     //returns set of all unique user names with the specified ip
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getUsersForIP(String ip, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getIp().equals(ip))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesForIP(ip, after, before), e -> e.getIp().equals(ip));
     }
 
     //returns set of unique user names with the Event value of "LOGIN"
     // from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getLoggedUsers(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getEvent().equals(Event.LOGIN))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesByDate(after, before), e -> e.getEvent().equals(Event.LOGIN));
     }
 
     //returns a set of unique user names with the Event value of "DOWNLOAD_PLUGIN"
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getDownloadedPluginUsers(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getEvent().equals(Event.DOWNLOAD_PLUGIN))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesByDate(after, before), e -> e.getEvent().equals(Event.DOWNLOAD_PLUGIN));
     }
 
     //returns a set of unique user names with the Event value of "WRITE_MESSAGE"
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getWroteMessageUsers(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getEvent().equals(Event.WRITE_MESSAGE))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesByDate(after, before), e -> e.getEvent().equals(Event.WRITE_MESSAGE));
     }
 
     //returns a set of unique user names with the Event value of "WRITE_MESSAGE"
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getSolvedTaskUsers(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getEvent().equals(Event.SOLVE_TASK))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesByDate(after, before), e -> e.getEvent().equals(Event.SOLVE_TASK));
     }
 
     //returns a set of unique user names with the Event value of "SOLVE_TASK" and the taskNumber
     //equal to specified task from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getSolvedTaskUsers(Date after, Date before, int task) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getTaskNumber() != 0 && e.getTaskNumber() == task && e.getEvent().equals(Event.SOLVE_TASK))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesForTask(task, after, before), e -> e.getTaskNumber() != 0 && e.getTaskNumber() == task && e.getEvent().equals(Event.SOLVE_TASK));
     }
 
     //returns a set of unique user names with the Event value of "DONE_TASK"
     //from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getDoneTaskUsers(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getEvent().equals(Event.DONE_TASK))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesByDate(after, before), e -> e.getEvent().equals(Event.DONE_TASK));
     }
 
     //returns a set of unique user names with the Event value of "DONE_TASK" and the taskNumber
     //equal to specified task from all log entries enclosed between specified dates inclusive
     @Override
     public Set<String> getDoneTaskUsers(Date after, Date before, int task) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getTaskNumber() != 0 && e.getTaskNumber() == task && e.getEvent().equals(Event.DONE_TASK))
-                .map(LogEntry::getName)
-                .collect(Collectors.toSet());
+        return collectUsers(getEntriesForTask(task, after, before), e -> e.getTaskNumber() != 0 && e.getTaskNumber() == task && e.getEvent().equals(Event.DONE_TASK));
     }
 
     //returns a set of unique dates for the specified period
     public Set<Date> getAllDates(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .map(LogEntry::getDate)
-                .collect(Collectors.toSet());
+        return collectDates(getEntriesByDate(after, before), e -> true);
     }
 
     //returns a set of unique dates when the user has made the event
     @Override
     public Set<Date> getDatesForUserAndEvent(String user, Event event, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getName().equals(user) && e.getEvent().equals(event))
-                .map(LogEntry::getDate)
-                .collect(Collectors.toSet());
+        return collectDates(getEntriesForUser(user, after, before), e -> e.getName().equals(user) && e.getEvent().equals(event));
     }
 
     //returns a set of unique dates which match to FAILED event
     @Override
     public Set<Date> getDatesWhenSomethingFailed(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getStatus().equals(Status.FAILED))
-                .map(LogEntry::getDate)
-                .collect(Collectors.toSet());
+        return collectDates(getEntriesByDate(after, before), e -> e.getStatus().equals(Status.FAILED));
     }
 
     //returns a set of unique dates which match to ERROR event
     @Override
     public Set<Date> getDatesWhenErrorHappened(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getStatus().equals(Status.ERROR))
-                .map(LogEntry::getDate)
-                .collect(Collectors.toSet());
+        return collectDates(getEntriesByDate(after, before), e -> e.getStatus().equals(Status.ERROR));
     }
 
     //returns the date when the user logged in first for the period or null
     @Override
     public Date getDateWhenUserLoggedFirstTime(String user, Date after, Date before) {
-        return getEntriesByDate(after, before)
+        return getEntriesForUser(user, after, before)
                 .stream()
-                .sorted(Comparator.comparing(LogEntry::getDate))
                 .filter(e -> e.getName().equals(user) && e.getEvent().equals(Event.LOGIN))
-                .findFirst()
+                .min(Comparator.comparing(LogEntry::getDate))
                 .map(LogEntry::getDate)
                 .orElse(null);
     }
@@ -280,11 +216,10 @@ public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQ
     //returns the date when the user tried to solve the task first for the period or null
     @Override
     public Date getDateWhenUserSolvedTask(String user, int task, Date after, Date before) {
-        return getEntriesByDate(after, before)
+        return getEntriesForUser(user, after, before)
                 .stream()
-                .sorted(Comparator.comparing(LogEntry::getDate))
                 .filter(e -> e.getName().equals(user) && e.getEvent().equals(Event.SOLVE_TASK) && e.getTaskNumber() == task)
-                .findFirst()
+                .min(Comparator.comparing(LogEntry::getDate))
                 .map(LogEntry::getDate)
                 .orElse(null);
     }
@@ -292,11 +227,10 @@ public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQ
     //returns the date when the user solved the task first for the period or null
     @Override
     public Date getDateWhenUserDoneTask(String user, int task, Date after, Date before) {
-        return getEntriesByDate(after, before)
+        return getEntriesForUser(user, after, before)
                 .stream()
-                .sorted(Comparator.comparing(LogEntry::getDate))
                 .filter(e -> e.getName().equals(user) && e.getEvent().equals(Event.DONE_TASK) && e.getTaskNumber() == task)
-                .findFirst()
+                .min(Comparator.comparing(LogEntry::getDate))
                 .map(LogEntry::getDate)
                 .orElse(null);
     }
@@ -304,21 +238,13 @@ public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQ
     //returns a set of unique dates when the user wrote a message for the period
     @Override
     public Set<Date> getDatesWhenUserWroteMessage(String user, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getName().equals(user) && e.getEvent().equals(Event.WRITE_MESSAGE))
-                .map(LogEntry::getDate)
-                .collect(Collectors.toSet());
+        return collectDates(getEntriesForUser(user, after, before), e -> e.getName().equals(user) && e.getEvent().equals(Event.WRITE_MESSAGE));
     }
 
     //returns a set of unique dates when the user downloaded plugin for the period
     @Override
     public Set<Date> getDatesWhenUserDownloadedPlugin(String user, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getName().equals(user) && e.getEvent().equals(Event.DOWNLOAD_PLUGIN))
-                .map(LogEntry::getDate)
-                .collect(Collectors.toSet());
+        return collectDates(getEntriesForUser(user, after, before), e -> e.getName().equals(user) && e.getEvent().equals(Event.DOWNLOAD_PLUGIN));
     }
 
     //returns the amount of unique events for the specified period
@@ -330,56 +256,37 @@ public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQ
     //returns a set of unique events for the specified period
     @Override
     public Set<Event> getAllEvents(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .map(LogEntry::getEvent)
-                .collect(Collectors.toSet());
+        return collectEvents(getEntriesByDate(after, before), e -> true);
     }
 
     //returns a set of unique events from the specified IP for the period
     @Override
     public Set<Event> getEventsForIP(String ip, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getIp().equals(ip))
-                .map(LogEntry::getEvent)
-                .collect(Collectors.toSet());
+        return collectEvents(getEntriesForIP(ip, after, before), e -> e.getIp().equals(ip));
     }
 
     //returns a set of unique events initiated by the specified user for the period
     @Override
     public Set<Event> getEventsForUser(String user, Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getName().equals(user))
-                .map(LogEntry::getEvent)
-                .collect(Collectors.toSet());
+        return collectEvents(getEntriesForUser(user, after, before), e -> e.getName().equals(user));
     }
 
     //returns a set of unique failed events for the period
     @Override
     public Set<Event> getFailedEvents(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getStatus().equals(Status.FAILED))
-                .map(LogEntry::getEvent)
-                .collect(Collectors.toSet());
+        return collectEvents(getEntriesByDate(after, before), e -> e.getStatus().equals(Status.FAILED));
     }
 
     //returns a set of unique error events for the period
     @Override
     public Set<Event> getErrorEvents(Date after, Date before) {
-        return getEntriesByDate(after, before)
-                .stream()
-                .filter(e -> e.getStatus().equals(Status.ERROR))
-                .map(LogEntry::getEvent)
-                .collect(Collectors.toSet());
+        return collectEvents(getEntriesByDate(after, before), e -> e.getStatus().equals(Status.ERROR));
     }
 
     //returns the amount of attempts to solve the specified task for the period
     @Override
     public int getNumberOfAttemptToSolveTask(int task, Date after, Date before) {
-        return (int) getEntriesByDate(after, before)
+        return (int) getEntriesForTask(task, after, before)
                 .stream()
                 .filter(e -> e.getTaskNumber() == task && e.getEvent().equals(Event.SOLVE_TASK))
                 .count();
@@ -388,7 +295,7 @@ public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQ
     //returns the amount of attempts to get the specified task done for the period
     @Override
     public int getNumberOfSuccessfulAttemptToSolveTask(int task, Date after, Date before) {
-        return (int) getEntriesByDate(after, before)
+        return (int) getEntriesForTask(task, after, before)
                 .stream()
                 .filter(e -> e.getTaskNumber() == task && e.getEvent().equals(Event.DONE_TASK))
                 .count();
@@ -419,151 +326,147 @@ public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQ
                 .collect(Collectors.toMap(i -> i, i -> getNumberOfSuccessfulAttemptToSolveTask(i, after, before), (a, b) -> b));
     }
 
-    //parses queries and returns a set of objects which were requested
+    //returns sessions and task funnels for the period computed in one chronological pass over log entries,
+    //a session is split when the user does nothing from the ip longer than inactivityGap milliseconds
+    public SessionAnalyzer analyzeSessions(Date after, Date before, long inactivityGap) {
+        SessionAnalyzer analyzer = new SessionAnalyzer(inactivityGap);
+        store.forEachInOrder(after, before, analyzer::accept);
+        analyzer.finish();
+        return analyzer;
+    }
+
+    //returns sessions of all users for the period sorted by their start date
     @Override
-    public Set<Object> execute(String query) {
-        Set<Object> set = null;
-        if (query.startsWith("get") && !query.contains("=")) {
-            switch (query) {
-                case "get ip":
-                    set = new HashSet<>(getUniqueIPs(null, null));
-                    break;
-                case "get user":
-                    set = new HashSet<>(getAllUsers());
-                    break;
-                case "get date":
-                    set = new HashSet<>(getAllDates(null, null));
-                    break;
-                case "get event":
-                    set = new HashSet<>(getAllEvents(null, null));
-                    break;
-                case "get status":
-                    set = getEntriesByDate(null, null).stream().map(LogEntry::getStatus)
-                            .collect(Collectors.toSet());
-                    break;
-            }
-        } else {
-
-            String[] queryParts = query.split("=");
-            String[] leftPartOfQuery = queryParts[0].split(" ");
-            String field1 = leftPartOfQuery[1].trim();
-            String field2 = leftPartOfQuery[3].trim();
-            String value1 = queryParts[1].substring(queryParts[1].indexOf("\"") + 1, queryParts[1].indexOf("\"", queryParts[1].indexOf("\"")+1));
-            Date after = null;
-            Date before = null;
-
-            if (queryParts[1].contains("and date between")) {
-                String datesBetween = queryParts[1].split("and date between")[1].replace("\"", "").trim();
-                String[] dates = datesBetween.split("and");
-                try {
-                    after = sdf.parse(dates[0].trim());
-                    before = sdf.parse(dates[1].trim());
-                } catch (ParseException ignored) {
-                }
+    public List<UserSession> getSessions(Date after, Date before, long inactivityGap) {
+        return analyzeSessions(after, before, inactivityGap).getSessions();
+    }
+
+    //returns a map of task numbers and their LOGIN -> SOLVE_TASK -> DONE_TASK funnels for the period
+    @Override
+    public Map<Integer, TaskFunnel> getTaskFunnels(Date after, Date before) {
+        return analyzeSessions(after, before, Long.MAX_VALUE).getTaskFunnels();
+    }
+
+    //evaluates all queries in a single chronological pass over the log entries of their joint period,
+    //queries with the same period share the date check
+    public BatchResult executeBatch(BatchQuery<?>... queries) {
+        return executeBatch(Arrays.asList(queries));
+    }
+
+    //the same as executeBatch for a collection of queries
+    public BatchResult executeBatch(Collection<? extends BatchQuery<?>> queries) {
+        Set<BatchQuery<?>> evaluated = new HashSet<>();
+        List<BatchQuery<?>> none = new ArrayList<>();
+        Map<BatchQuery<?>, BatchQuery.Accumulator<?>> accumulators = new LinkedHashMap<>();
+        Map<List<Date>, List<BatchQuery.Accumulator<?>>> plan = new LinkedHashMap<>();
+        Date after = null;
+        Date before = null;
+        boolean unboundedAfter = false;
+        boolean unboundedBefore = false;
+        for (BatchQuery<?> query : queries) {
+            if (!evaluated.add(query)) continue;
+            if (query.isNone()) {
+                none.add(query);
+                continue;
             }
+            Date queryAfter = query.getAfter();
+            Date queryBefore = query.getBefore();
+            BatchQuery.Accumulator<?> accumulator = query.newAccumulator();
+            accumulators.put(query, accumulator);
+            plan.computeIfAbsent(Arrays.asList(queryAfter, queryBefore), k -> new ArrayList<>()).add(accumulator);
+
+            if (queryAfter == null) unboundedAfter = true;
+            else if (after == null || queryAfter.before(after)) after = queryAfter;
+            if (queryBefore == null) unboundedBefore = true;
+            else if (before == null || queryBefore.after(before)) before = queryBefore;
+        }
 
-            switch (field1) {
-                case "ip":
-                    switch (field2) {
-                        case "user":
-                            set = new HashSet<>(getIPsForUser(value1, after, before));
-                            break;
-                        case "date":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getDate().equals(readDate(value1)))
-                            .map(LogEntry::getIp).collect(Collectors.toSet());
-                            break;
-                        case "event":
-                            set = new HashSet<>(getIPsForEvent(readEvent(value1), after, before));
-                            break;
-                        case "status":
-                            set = new HashSet<>(getIPsForStatus(readStatus(value1), after, before));
-                            break;
-                    }
-                    break;
-                case "user":
-                    switch (field2) {
-                        case "ip":
-                            set = new HashSet<>(getUsersForIP(value1, after, before));
-                            break;
-                        case "date":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getDate().equals(readDate(value1)))
-                                    .map(LogEntry::getName).collect(Collectors.toSet());
-                            break;
-                        case "event":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getEvent() == readEvent(value1))
-                                    .map(LogEntry::getName).collect(Collectors.toSet());
-                            break;
-                        case "status":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getStatus().equals(readStatus(value1)))
-                                    .map(LogEntry::getName).collect(Collectors.toSet());
-                            break;
-                    }
-                    break;
-                case "date":
-                    switch (field2) {
-                        case "ip":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getIp().equals(value1))
-                                    .map(LogEntry::getDate).collect(Collectors.toSet());
-                            break;
-                        case "user":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getName().equals(value1))
-                                    .map(LogEntry::getDate).collect(Collectors.toSet());
-                            break;
-                        case "event":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getEvent().equals(readEvent(value1)))
-                                    .map(LogEntry::getDate).collect(Collectors.toSet());
-                            break;
-                        case "status":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getStatus().equals(readStatus(value1)))
-                                    .map(LogEntry::getDate).collect(Collectors.toSet());
-                            break;
-                    }
-                    break;
-                case "event":
-                    switch (field2) {
-                        case "ip":
-                            set = new HashSet<>(getEventsForIP(value1, after, before));
-                            break;
-                        case "user":
-                            set = new HashSet<>(getEventsForUser(value1, after, before));
-                            break;
-                        case "date":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getDate().equals(readDate(value1)))
-                            .map(LogEntry::getEvent).collect(Collectors.toSet());
-                            break;
-                        case "status":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getStatus().equals(readStatus(value1)))
-                                    .map(LogEntry::getEvent).collect(Collectors.toSet());
-                            break;
-                    }
-                    break;
-                case "status":
-                    switch (field2) {
-                        case "ip":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getIp().equals(value1))
-                                    .map(LogEntry::getStatus).collect(Collectors.toSet());
-                            break;
-                        case "user":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getName().equals(value1))
-                                    .map(LogEntry::getStatus).collect(Collectors.toSet());
-                            break;
-                        case "date":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getDate().equals(readDate(value1)))
-                                    .map(LogEntry::getStatus).collect(Collectors.toSet());
-                            break;
-                        case "event":
-                            set = getEntriesByDate(after, before).stream().filter(e -> e.getEvent().equals(readEvent(value1)))
-                                    .map(LogEntry::getStatus).collect(Collectors.toSet());
-                            break;
+        if (!plan.isEmpty()) {
+            store.forEachInOrder(unboundedAfter ? null : after, unboundedBefore ? null : before, logEntry -> {
+                for (Map.Entry<List<Date>, List<BatchQuery.Accumulator<?>>> group : plan.entrySet()) {
+                    Date groupAfter = group.getKey().get(0);
+                    Date groupBefore = group.getKey().get(1);
+                    if ((groupAfter == null || logEntry.getDate().after(groupAfter))
+                            && (groupBefore == null || logEntry.getDate().before(groupBefore))) {
+                        for (BatchQuery.Accumulator<?> accumulator : group.getValue()) {
+                            accumulator.accept(logEntry);
+                        }
                     }
-                    break;
-            }
+                }
+            });
+        }
+
+        BatchResult result = new BatchResult();
+        none.forEach(query -> result.put(query, null));
+        accumulators.forEach((query, accumulator) -> result.put(query, accumulator.getResult()));
+        return result;
+    }
+
+    //parses queries and returns a set of objects which were requested
+    @Override
+    public Set<Object> execute(String query) {
+        return execute(QLStatement.parse(query, this));
+    }
+
+    //returns a set of objects requested by the parsed query or null if the query is not valid
+    public Set<Object> execute(QLStatement statement) {
+        if (!statement.isValid()) return null;
+
+        List<LogEntry> entries = getEntriesFor(statement);
+        switch (statement.getField()) {
+            case "ip":
+                return new HashSet<>(collectIPs(entries, statement::matches));
+            case "user":
+                return new HashSet<>(collectUsers(entries, statement::matches));
+            case "date":
+                return new HashSet<>(collectDates(entries, statement::matches));
+            case "event":
+                return new HashSet<>(collectEvents(entries, statement::matches));
+            case "status":
+                return new HashSet<>(collectStatuses(entries, statement::matches));
         }
-        return set;
+        return null;
+    }
+
+    //returns log entries of the query period, a filter by user or ip skips partitions by their Bloom filters
+    private List<LogEntry> getEntriesFor(QLStatement statement) {
+        String filterField = statement.getFilterField();
+        if ("user".equals(filterField)) {
+            return getEntriesForUser(statement.getValue(), statement.getAfter(), statement.getBefore());
+        }
+        if ("ip".equals(filterField)) {
+            return getEntriesForIP(statement.getValue(), statement.getAfter(), statement.getBefore());
+        }
+        return getEntriesByDate(statement.getAfter(), statement.getBefore());
+    }
+
+    //returns a set of unique IPs of the log entries matching the filter for the period
+    private Set<String> collectIPs(List<LogEntry> entries, Predicate<LogEntry> filter) {
+        return Aggregator.toValueSet(entries, filter, LogEntry::getIpId, store.getIps());
+    }
+
+    //returns a set of unique user names of the log entries matching the filter for the period
+    private Set<String> collectUsers(List<LogEntry> entries, Predicate<LogEntry> filter) {
+        return Aggregator.toValueSet(entries, filter, LogEntry::getNameId, store.getNames());
+    }
+
+    //returns a set of unique events of the log entries matching the filter for the period
+    private Set<Event> collectEvents(List<LogEntry> entries, Predicate<LogEntry> filter) {
+        return Aggregator.toEnumSet(entries, filter, LogEntry::getEvent, Event.class);
+    }
+
+    //returns a set of unique statuses of the log entries matching the filter for the period
+    private Set<Status> collectStatuses(List<LogEntry> entries, Predicate<LogEntry> filter) {
+        return Aggregator.toEnumSet(entries, filter, LogEntry::getStatus, Status.class);
+    }
+
+    //returns a set of unique dates of the log entries matching the filter for the period
+    private Set<Date> collectDates(List<LogEntry> entries, Predicate<LogEntry> filter) {
+        return Aggregator.toSet(entries, filter, LogEntry::getDate);
     }
 
-    //returns a Date object by its text value
-    public Date readDate(String value) {
+    //returns a Date object by its text value, the method may be called from several threads
+    public synchronized Date readDate(String value) {
         Date date = null;
         try {
             date = sdf.parse(value);
@@ -0,0 +1,96 @@
+package logs_parser;
+
+import java.nio.file.Path;
+import java.util.*;
+/*
+ * The class contains log entries of a single time partition (one day),
+ * the earliest and the latest log dates of the partition and the files its entries were read from.
+ * Entries are kept sorted by date. An evicted partition keeps only its metadata
+ * and is read again from its files when it is queried. Bloom filters over the partition values
+ * stay in memory after eviction
+ */
+public class LogPartition {
+    private final long start;
+    private final long end;
+    private final Set<Path> sourceFiles = new LinkedHashSet<>();
+    private List<LogEntry> entries = new ArrayList<>();
+    private Date minDate;
+    private Date maxDate;
+    private int size;
+    private ValueFilters filters;
+
+    public LogPartition(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    //adds the log entry read from the specified file
+    public void add(LogEntry logEntry, Path file) {
+        Date date = logEntry.getDate();
+        if (minDate == null || date.before(minDate)) minDate = date;
+        if (maxDate == null || date.after(maxDate)) maxDate = date;
+        sourceFiles.add(file);
+        entries.add(logEntry);
+        size++;
+    }
+
+    //sorts the partition entries by date and builds its filters once all files are read
+    public void seal() {
+        entries.sort(Comparator.comparing(LogEntry::getDate));
+        filters = ValueFilters.build(entries);
+    }
+
+    //returns true if the partition may contain log entries enclosed between specified dates
+    public boolean overlaps(Date after, Date before) {
+        return size > 0
+                && (after == null || maxDate.after(after))
+                && (before == null || minDate.before(before));
+    }
+
+    //returns true if the date belongs to the partition
+    public boolean contains(Date date) {
+        return date.getTime() >= start && date.getTime() < end;
+    }
+
+    //returns the entries kept in memory or null if the partition was evicted
+    public synchronized List<LogEntry> getEntries() {
+        return entries;
+    }
+
+    //drops the partition entries from memory, the metadata is kept
+    public synchronized void evict() {
+        entries = null;
+    }
+
+    public synchronized boolean isLoaded() {
+        return entries != null;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public Set<Path> getSourceFiles() {
+        return sourceFiles;
+    }
+
+    public Date getMinDate() {
+        return minDate;
+    }
+
+    public Date getMaxDate() {
+        return maxDate;
+    }
+
+    public ValueFilters getFilters() {
+        return filters;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
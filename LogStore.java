@@ -0,0 +1,248 @@
+package logs_parser;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+/*
+ * The class reads *.log files from logDir directory once and keeps their entries
+ * split into daily time partitions. Queries skip partitions which lie outside of the requested period
+ * and lookups of a single value skip partitions and files whose Bloom filters do not contain it
+ */
+public class LogStore {
+    private final Path logDir;
+    private final SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final NavigableMap<Long, LogPartition> partitions = new TreeMap<>();
+    private final Map<Path, LogFileInfo> files = new LinkedHashMap<>();
+    private final ValueDictionary ips = new ValueDictionary();
+    private final ValueDictionary names = new ValueDictionary();
+    private boolean loaded;
+
+    public LogStore(Path logDir) {
+        this.logDir = logDir;
+    }
+
+    //reads all files from logDir directory if it has not been done yet
+    public synchronized void load() {
+        if (loaded) return;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDir)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().endsWith(".log")) {
+                    LogFileInfo fileInfo = new LogFileInfo(file);
+                    files.put(file, fileInfo);
+                    List<LogEntry> entries = readFile(file);
+                    for (LogEntry logEntry : entries) {
+                        fileInfo.add(logEntry.getDate());
+                        getPartition(logEntry.getDate()).add(logEntry, file);
+                    }
+                    fileInfo.setFilters(ValueFilters.build(entries));
+                }
+            }
+        } catch (IOException ignored) {}
+        partitions.values().forEach(LogPartition::seal);
+        loaded = true;
+    }
+
+    //forgets everything that was read, the files will be read again by the next query
+    public synchronized void reload() {
+        partitions.clear();
+        files.clear();
+        loaded = false;
+    }
+
+    //returns a list of all log entries enclosed between specified dates
+    //reading only the partitions which overlap the period
+    public List<LogEntry> getEntries(Date after, Date before) {
+        return getEntries(after, before, filters -> true);
+    }
+
+    //returns a list of log entries enclosed between specified dates skipping partitions and files
+    //whose filters are rejected by the lookup, the entries still have to be checked by the caller
+    public List<LogEntry> getEntries(Date after, Date before, Predicate<ValueFilters> lookup) {
+        List<LogEntry> entriesByDate = new ArrayList<>();
+        forEachInOrder(after, before, lookup, entriesByDate::add);
+        return entriesByDate;
+    }
+
+    //passes all log entries enclosed between specified dates to the action in chronological order
+    //without collecting them into a list
+    public void forEachInOrder(Date after, Date before, Consumer<LogEntry> action) {
+        forEachInOrder(after, before, filters -> true, action);
+    }
+
+    //the same as forEachInOrder skipping partitions and files whose filters are rejected by the lookup
+    public void forEachInOrder(Date after, Date before, Predicate<ValueFilters> lookup, Consumer<LogEntry> action) {
+        List<LogPartition> selected = new ArrayList<>();
+        for (LogPartition partition : getPartitions(after, before)) {
+            if (lookup.test(partition.getFilters())) selected.add(partition);
+        }
+        Map<LogPartition, List<LogEntry>> evicted = readEvicted(selected, after, before, lookup);
+
+        for (LogPartition partition : selected) {
+            checkInterrupted();
+            List<LogEntry> entries = partition.getEntries();
+            if (entries == null) entries = evicted.get(partition);
+            if (entries == null) entries = getEntries(partition, lookup);
+            for (LogEntry logEntry : entries) {
+                if ((after == null || logEntry.getDate().after(after))
+                        && (before == null || logEntry.getDate().before(before))) {
+                    action.accept(logEntry);
+                }
+            }
+        }
+    }
+
+    //returns partitions overlapping the period in chronological order
+    public synchronized List<LogPartition> getPartitions(Date after, Date before) {
+        load();
+        List<LogPartition> result = new ArrayList<>();
+        for (LogPartition partition : partitions.values()) {
+            if (partition.overlaps(after, before)) result.add(partition);
+        }
+        return result;
+    }
+
+    //returns the partition entries sorted by date, an evicted partition is read from its files
+    //and stays evicted
+    public List<LogEntry> getEntries(LogPartition partition) {
+        return getEntries(partition, filters -> true);
+    }
+
+    //the same as getEntries, files of an evicted partition whose filters are rejected by the lookup are not read
+    public List<LogEntry> getEntries(LogPartition partition, Predicate<ValueFilters> lookup) {
+        List<LogEntry> entries = partition.getEntries();
+        if (entries != null) return entries;
+        return readEvicted(Collections.singletonList(partition), null, null, lookup)
+                .getOrDefault(partition, Collections.emptyList());
+    }
+
+    //reads the entries enclosed between specified dates of all evicted partitions reading each file once,
+    //files which have no entries in the period or whose filters are rejected by the lookup are not read
+    private Map<LogPartition, List<LogEntry>> readEvicted(List<LogPartition> selected, Date after, Date before,
+                                                          Predicate<ValueFilters> lookup) {
+        NavigableMap<Long, LogPartition> evicted = new TreeMap<>();
+        Set<Path> sourceFiles = new LinkedHashSet<>();
+        for (LogPartition partition : selected) {
+            if (partition.isLoaded()) continue;
+            evicted.put(partition.getStart(), partition);
+            for (Path file : partition.getSourceFiles()) {
+                LogFileInfo fileInfo = getFileInfo(file);
+                if (fileInfo == null || fileInfo.overlaps(after, before) && lookup.test(fileInfo.getFilters())) {
+                    sourceFiles.add(file);
+                }
+            }
+        }
+
+        Map<LogPartition, List<LogEntry>> entries = new HashMap<>();
+        for (LogPartition partition : evicted.values()) entries.put(partition, new ArrayList<>());
+        for (Path file : sourceFiles) {
+            checkInterrupted();
+            for (LogEntry logEntry : readFile(file)) {
+                if (!((after == null || logEntry.getDate().after(after))
+                        && (before == null || logEntry.getDate().before(before)))) continue;
+                Map.Entry<Long, LogPartition> partition = evicted.floorEntry(logEntry.getDate().getTime());
+                if (partition != null && partition.getValue().contains(logEntry.getDate())) {
+                    entries.get(partition.getValue()).add(logEntry);
+                }
+            }
+        }
+        entries.values().forEach(list -> list.sort(Comparator.comparing(LogEntry::getDate)));
+        return entries;
+    }
+
+    //drops from memory all partitions which end before the specified date
+    public synchronized void evictBefore(Date date) {
+        load();
+        for (LogPartition partition : partitions.headMap(date.getTime(), true).values()) {
+            if (partition.getEnd() <= date.getTime()) partition.evict();
+        }
+    }
+
+    //returns metadata of all read files
+    public synchronized Collection<LogFileInfo> getFiles() {
+        load();
+        return new ArrayList<>(files.values());
+    }
+
+    public ValueDictionary getIps() {
+        return ips;
+    }
+
+    public ValueDictionary getNames() {
+        return names;
+    }
+
+    public synchronized LogFileInfo getFileInfo(Path file) {
+        return files.get(file);
+    }
+
+    //stops a scan whose thread was interrupted, e.g. by a query timeout
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) throw new CancellationException("the query was interrupted");
+    }
+
+    //returns the partition the date belongs to creating it if necessary
+    private LogPartition getPartition(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long start = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        long end = calendar.getTimeInMillis();
+        return partitions.computeIfAbsent(start, k -> new LogPartition(start, end));
+    }
+
+    //returns a list of all log entries of the file
+    private List<LogEntry> readFile(Path file) {
+        List<LogEntry> entries = new ArrayList<>();
+        try (BufferedReader in = newReader(file)) {
+            while (in.ready()) {
+                entries.add(parseLine(in.readLine()));
+            }
+        } catch (IOException | ParseException ignored) {}
+        return entries;
+    }
+
+    //returns a reader of the log file, all log files are read in the platform charset
+    public static BufferedReader newReader(Path file) throws IOException {
+        return new BufferedReader(new FileReader(file.toString()));
+    }
+
+    //returns a writer of a log file in the same charset the log files are read in
+    public static BufferedWriter newWriter(Path file) throws IOException {
+        return new BufferedWriter(new FileWriter(file.toString()));
+    }
+
+    //returns a log entry by its text line
+    public LogEntry parseLine(String line) throws ParseException {
+        String[] params = line.split("\t");
+        LogEntry logEntry = new LogEntry();
+        logEntry.setIp(params[0]);
+        logEntry.setName(params[1]);
+        logEntry.setIpId(ips.getId(params[0]));
+        logEntry.setNameId(names.getId(params[1]));
+        synchronized (sdf) {
+            logEntry.setDate(sdf.parse(params[2]));
+        }
+
+        if (params[3].contains(" ")
+                && (params[3].contains("SOLVE_TASK") || params[3].contains("DONE_TASK"))) {
+            String[] tempArr = params[3].split(" ");
+            logEntry.setEvent(Event.valueOf(tempArr[0]));
+            logEntry.setTaskNumber(Integer.parseInt(tempArr[1]));
+        } else {
+            logEntry.setEvent(Event.valueOf(params[3]));
+        }
+        logEntry.setStatus(Status.valueOf(params[4]));
+        return logEntry;
+    }
+}
@@ -0,0 +1,126 @@
+package logs_parser;
+
+import java.util.Date;
+/*
+ * The class contains a parsed QL query: the requested field, the optional filter field with its value
+ * and the optional period, e.g. get field1 for field2 = "value1" and date between "after" and "before"
+ */
+public class QLStatement {
+    private String field;
+    private String filterField;
+    private String value;
+    private Date after;
+    private Date before;
+    private Date dateValue;
+    private Event eventValue;
+    private Status statusValue;
+
+    //parses the query, parser is used to read dates, events and statuses,
+    //throws IllegalArgumentException if the query does not follow the QL format
+    public static QLStatement parse(String query, LogParser parser) {
+        QLStatement statement = new QLStatement();
+        if (query.startsWith("get") && !query.contains("=")) {
+            statement.field = query.substring(3).trim();
+            return statement;
+        }
+
+        try {
+            String[] queryParts = query.split("=");
+            String[] leftPartOfQuery = queryParts[0].split(" ");
+            statement.field = leftPartOfQuery[1].trim();
+            statement.filterField = leftPartOfQuery[3].trim();
+            statement.value = queryParts[1].substring(queryParts[1].indexOf("\"") + 1, queryParts[1].indexOf("\"", queryParts[1].indexOf("\"")+1));
+
+            if (queryParts[1].contains("and date between")) {
+                String datesBetween = queryParts[1].split("and date between")[1].replace("\"", "").trim();
+                String[] dates = datesBetween.split("and");
+                statement.after = parser.readDate(dates[0].trim());
+                if (statement.after != null) statement.before = parser.readDate(dates[1].trim());
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("malformed query: " + query);
+        }
+
+        statement.dateValue = statement.filterField.equals("date") ? parser.readDate(statement.value) : null;
+        statement.eventValue = parser.readEvent(statement.value);
+        statement.statusValue = parser.readStatus(statement.value);
+        return statement;
+    }
+
+    //returns true if the requested and the filter fields are known and differ
+    public boolean isValid() {
+        return isField(field) && (filterField == null || isField(filterField) && !filterField.equals(field));
+    }
+
+    //returns true if the log entry matches the filter of the query
+    public boolean matches(LogEntry logEntry) {
+        if (filterField == null) return true;
+        switch (filterField) {
+            case "ip":
+                return logEntry.getIp().equals(value);
+            case "user":
+                return logEntry.getName().equals(value);
+            case "date":
+                return logEntry.getDate().equals(dateValue);
+            case "event":
+                return logEntry.getEvent() == eventValue;
+            case "status":
+                return logEntry.getStatus() == statusValue;
+        }
+        return false;
+    }
+
+    //returns the requested field of the log entry
+    public Object select(LogEntry logEntry) {
+        switch (field) {
+            case "ip":
+                return logEntry.getIp();
+            case "user":
+                return logEntry.getName();
+            case "date":
+                return logEntry.getDate();
+            case "event":
+                return logEntry.getEvent();
+            case "status":
+                return logEntry.getStatus();
+        }
+        return null;
+    }
+
+    private static boolean isField(String name) {
+        return name.equals("ip") || name.equals("user") || name.equals("date")
+                || name.equals("event") || name.equals("status");
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getFilterField() {
+        return filterField;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Date getAfter() {
+        return after;
+    }
+
+    public Date getBefore() {
+        return before;
+    }
+
+    public Date getDateValue() {
+        return dateValue;
+    }
+
+    public Event getEventValue() {
+        return eventValue;
+    }
+
+    public Status getStatusValue() {
+        return statusValue;
+    }
+}
@@ -0,0 +1,344 @@
+package logs_parser;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.*;
+/*
+ * The class serves queries to a shared LogParser over HTTP and returns results as JSON:
+ * /ql?q=get ip for user = "Amigo" runs a QL query,
+ * /query/getIPsForUser?user=Amigo&after=01.01.2013 00:00:00 runs a query method,
+ * parameters are user, ip, event, status, task, after and before.
+ * Each request is handled and its query is run by its own virtual thread (a thread of a pool
+ * of maxRequests threads before Java 21). At most maxRequests queries run at once, a query running
+ * longer than the timeout is interrupted and stops at the next partition it reads
+ */
+public class QueryServer {
+    public static final int DEFAULT_MAX_REQUESTS = 256;
+    public static final long DEFAULT_TIMEOUT = 30_000;
+
+    private final LogParser logParser;
+    private final int port;
+    private final Semaphore requests;
+    private final long timeout;
+    private final SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final int maxRequests;
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledThreadPoolExecutor timer;
+
+    public QueryServer(LogParser logParser, int port) {
+        this(logParser, port, DEFAULT_MAX_REQUESTS, DEFAULT_TIMEOUT);
+    }
+
+    public QueryServer(LogParser logParser, int port, int maxRequests, long timeout) {
+        this.logParser = logParser;
+        this.port = port;
+        this.maxRequests = maxRequests;
+        this.requests = new Semaphore(maxRequests);
+        this.timeout = timeout;
+    }
+
+    //loads the logs and starts accepting requests
+    public void start() throws IOException {
+        logParser.load();
+        executor = newExecutor(maxRequests);
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "query-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //cancelled timeouts of finished queries are dropped at once instead of waiting for their delay
+        timer.setRemoveOnCancelPolicy(true);
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/ql", exchange -> handle(exchange, () -> {
+            String query = readParams(exchange).get("q");
+            if (query == null) throw new IllegalArgumentException("parameter q is missing");
+            QLStatement statement = QLStatement.parse(query, logParser);
+            if (!statement.isValid()) throw new IllegalArgumentException("unknown field in query");
+            return logParser.execute(statement);
+        }));
+        server.createContext("/query/", exchange -> handle(exchange, () -> {
+            String method = exchange.getRequestURI().getPath().substring("/query/".length());
+            return invoke(method, readParams(exchange));
+        }));
+        server.start();
+    }
+
+    //stops accepting requests and waits for the running ones at most a second
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    //runs the query on the handler thread within the limits and writes its result or error,
+    //the permit is released only when the query has really ended
+    private void handle(HttpExchange exchange, Callable<Object> query) throws IOException {
+        if (!requests.tryAcquire()) {
+            send(exchange, 503, error("too many requests"));
+            return;
+        }
+        int code;
+        String json;
+        try {
+            Deadline deadline = new Deadline(Thread.currentThread());
+            ScheduledFuture<?> interruption = timer.schedule(deadline::expire, timeout, TimeUnit.MILLISECONDS);
+            try {
+                json = toJson(query.call());
+                code = 200;
+            } catch (CancellationException e) {
+                code = deadline.isExpired() ? 504 : 503;
+                json = error(deadline.isExpired() ? "query timed out" : "server is stopping");
+            } catch (IllegalArgumentException e) {
+                code = 400;
+                json = error(e.getMessage());
+            } catch (Exception e) {
+                code = 500;
+                json = error("internal error");
+            } finally {
+                interruption.cancel(false);
+                deadline.finish();
+            }
+        } finally {
+            requests.release();
+        }
+        send(exchange, code, json);
+    }
+
+    //interrupts the query thread when the timeout expires unless the query has already ended
+    private static class Deadline {
+        private final Thread thread;
+        private boolean finished;
+        private boolean expired;
+
+        private Deadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        private synchronized void expire() {
+            if (finished) return;
+            expired = true;
+            thread.interrupt();
+        }
+
+        //marks the query as ended and clears a possible interruption of the handler thread
+        private synchronized void finish() {
+            finished = true;
+            Thread.interrupted();
+        }
+
+        private synchronized boolean isExpired() {
+            return expired;
+        }
+    }
+
+    //calls the query method by its name
+    private Object invoke(String method, Map<String, String> params) {
+        Date after = readDate(params, "after");
+        Date before = readDate(params, "before");
+        switch (method) {
+            case "getNumberOfUniqueIPs":
+                return logParser.getNumberOfUniqueIPs(after, before);
+            case "getUniqueIPs":
+                return logParser.getUniqueIPs(after, before);
+            case "getIPsForUser":
+                return logParser.getIPsForUser(require(params, "user"), after, before);
+            case "getIPsForEvent":
+                return logParser.getIPsForEvent(readEvent(params), after, before);
+            case "getIPsForStatus":
+                return logParser.getIPsForStatus(readStatus(params), after, before);
+            case "getAllUsers":
+                return logParser.getAllUsers();
+            case "getNumberOfUsers":
+                return logParser.getNumberOfUsers(after, before);
+            case "getNumberOfUserEvents":
+                return logParser.getNumberOfUserEvents(require(params, "user"), after, before);
+            case "getUsersForIP":
+                return logParser.getUsersForIP(require(params, "ip"), after, before);
+            case "getLoggedUsers":
+                return logParser.getLoggedUsers(after, before);
+            case "getDownloadedPluginUsers":
+                return logParser.getDownloadedPluginUsers(after, before);
+            case "getWroteMessageUsers":
+                return logParser.getWroteMessageUsers(after, before);
+            case "getSolvedTaskUsers":
+                return params.containsKey("task")
+                        ? logParser.getSolvedTaskUsers(after, before, readTask(params))
+                        : logParser.getSolvedTaskUsers(after, before);
+            case "getDoneTaskUsers":
+                return params.containsKey("task")
+                        ? logParser.getDoneTaskUsers(after, before, readTask(params))
+                        : logParser.getDoneTaskUsers(after, before);
+            case "getDatesForUserAndEvent":
+                return logParser.getDatesForUserAndEvent(require(params, "user"), readEvent(params), after, before);
+            case "getDatesWhenSomethingFailed":
+                return logParser.getDatesWhenSomethingFailed(after, before);
+            case "getDatesWhenErrorHappened":
+                return logParser.getDatesWhenErrorHappened(after, before);
+            case "getDateWhenUserLoggedFirstTime":
+                return logParser.getDateWhenUserLoggedFirstTime(require(params, "user"), after, before);
+            case "getDateWhenUserSolvedTask":
+                return logParser.getDateWhenUserSolvedTask(require(params, "user"), readTask(params), after, before);
+            case "getDateWhenUserDoneTask":
+                return logParser.getDateWhenUserDoneTask(require(params, "user"), readTask(params), after, before);
+            case "getDatesWhenUserWroteMessage":
+                return logParser.getDatesWhenUserWroteMessage(require(params, "user"), after, before);
+            case "getDatesWhenUserDownloadedPlugin":
+                return logParser.getDatesWhenUserDownloadedPlugin(require(params, "user"), after, before);
+            case "getNumberOfAllEvents":
+                return logParser.getNumberOfAllEvents(after, before);
+            case "getAllEvents":
+                return logParser.getAllEvents(after, before);
+            case "getEventsForIP":
+                return logParser.getEventsForIP(require(params, "ip"), after, before);
+            case "getEventsForUser":
+                return logParser.getEventsForUser(require(params, "user"), after, before);
+            case "getFailedEvents":
+                return logParser.getFailedEvents(after, before);
+            case "getErrorEvents":
+                return logParser.getErrorEvents(after, before);
+            case "getNumberOfAttemptToSolveTask":
+                return logParser.getNumberOfAttemptToSolveTask(readTask(params), after, before);
+            case "getNumberOfSuccessfulAttemptToSolveTask":
+                return logParser.getNumberOfSuccessfulAttemptToSolveTask(readTask(params), after, before);
+            case "getAllSolvedTasksAndTheirNumber":
+                return logParser.getAllSolvedTasksAndTheirNumber(after, before);
+            case "getAllDoneTasksAndTheirNumber":
+                return logParser.getAllDoneTasksAndTheirNumber(after, before);
+        }
+        throw new IllegalArgumentException("unknown method " + method);
+    }
+
+    //returns decoded parameters of the request query string
+    private static Map<String, String> readParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String param : query.split("&")) {
+            int index = param.indexOf('=');
+            if (index < 0) continue;
+            params.put(URLDecoder.decode(param.substring(0, index), StandardCharsets.UTF_8),
+                    URLDecoder.decode(param.substring(index + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) throw new IllegalArgumentException("parameter " + name + " is missing");
+        return value;
+    }
+
+    private Date readDate(Map<String, String> params, String name) {
+        if (!params.containsKey(name)) return null;
+        Date date = logParser.readDate(params.get(name));
+        if (date == null) throw new IllegalArgumentException("parameter " + name + " is not a date");
+        return date;
+    }
+
+    private Event readEvent(Map<String, String> params) {
+        Event event = logParser.readEvent(require(params, "event"));
+        if (event == null) throw new IllegalArgumentException("parameter event is not an event");
+        return event;
+    }
+
+    private Status readStatus(Map<String, String> params) {
+        Status status = logParser.readStatus(require(params, "status"));
+        if (status == null) throw new IllegalArgumentException("parameter status is not a status");
+        return status;
+    }
+
+    private static int readTask(Map<String, String> params) {
+        try {
+            return Integer.parseInt(require(params, "task"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("parameter task is not a number");
+        }
+    }
+
+    private static void send(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String error(String message) {
+        return "{\"error\":" + toJson(message) + "}";
+    }
+
+    //returns the query result as JSON, sets become arrays and dates are written in the log format
+    private String toJson(Object value) {
+        if (value == null) return "null";
+        if (value instanceof Number || value instanceof Boolean) return value.toString();
+        if (value instanceof Date) {
+            synchronized (sdf) {
+                return toJson(sdf.format((Date) value));
+            }
+        }
+        if (value instanceof Collection) {
+            StringJoiner joiner = new StringJoiner(",", "[", "]");
+            for (Object item : (Collection<?>) value) joiner.add(toJson(item));
+            return joiner.toString();
+        }
+        if (value instanceof Map) {
+            StringJoiner joiner = new StringJoiner(",", "{", "}");
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                joiner.add(toJson(String.valueOf(entry.getKey())) + ":" + toJson(entry.getValue()));
+            }
+            return joiner.toString();
+        }
+
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : value.toString().toCharArray()) {
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    //returns a virtual thread per task executor when the JVM supports it (Java 21+),
+    //otherwise a pool of maxRequests threads
+    private static ExecutorService newExecutor(int maxRequests) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxRequests);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package logs_parser;
+
+import java.util.*;
+/*
+ * The class builds user sessions and task funnels from log entries passed in chronological order.
+ * Only the open session of each user and ip and the funnel progress of each user are kept
+ * while the entries are being read
+ */
+public class SessionAnalyzer {
+    private final long inactivityGap;
+    private final Map<String, UserSession> openSessions = new HashMap<>();
+    private final List<UserSession> sessions = new ArrayList<>();
+    private final Map<String, FunnelProgress> progress = new HashMap<>();
+    private final Map<Integer, TaskFunnel> funnels = new TreeMap<>();
+    private boolean finished;
+
+    public SessionAnalyzer(long inactivityGap) {
+        this.inactivityGap = inactivityGap;
+    }
+
+    //takes into account the next log entry, entries have to be passed in chronological order
+    public void accept(LogEntry logEntry) {
+        String key = logEntry.getName() + "\t" + logEntry.getIp();
+        UserSession session = openSessions.get(key);
+        if (session != null && logEntry.getDate().getTime() - session.getEnd().getTime() > inactivityGap) {
+            sessions.add(session);
+            session = null;
+        }
+        if (session == null) {
+            session = new UserSession(logEntry.getName(), logEntry.getIp(), logEntry.getDate());
+            openSessions.put(key, session);
+        }
+        session.add(logEntry.getDate());
+
+        FunnelProgress userProgress = progress.computeIfAbsent(logEntry.getName(), k -> new FunnelProgress());
+        switch (logEntry.getEvent()) {
+            case LOGIN:
+                userProgress.logged = true;
+                break;
+            case SOLVE_TASK:
+                if (userProgress.logged && !userProgress.firstSolve.containsKey(logEntry.getTaskNumber())) {
+                    userProgress.firstSolve.put(logEntry.getTaskNumber(), logEntry.getDate());
+                    getFunnel(logEntry.getTaskNumber()).addSolvedUser();
+                }
+                break;
+            case DONE_TASK:
+                Date firstSolve = userProgress.firstSolve.get(logEntry.getTaskNumber());
+                if (firstSolve != null && userProgress.done.add(logEntry.getTaskNumber())) {
+                    getFunnel(logEntry.getTaskNumber()).addDoneUser(logEntry.getDate().getTime() - firstSolve.getTime());
+                }
+                break;
+        }
+    }
+
+    //closes all open sessions, no more entries are expected after this call
+    public void finish() {
+        if (finished) return;
+        sessions.addAll(openSessions.values());
+        openSessions.clear();
+        sessions.sort(Comparator.comparing(UserSession::getStart));
+        int loggedUsers = (int) progress.values().stream().filter(p -> p.logged).count();
+        funnels.values().forEach(f -> f.setLoggedUsers(loggedUsers));
+        finished = true;
+    }
+
+    //returns all sessions sorted by their start date
+    public List<UserSession> getSessions() {
+        finish();
+        return sessions;
+    }
+
+    //returns funnels of all tasks users tried to solve after they had logged in
+    public Map<Integer, TaskFunnel> getTaskFunnels() {
+        finish();
+        return funnels;
+    }
+
+    private TaskFunnel getFunnel(int task) {
+        return funnels.computeIfAbsent(task, TaskFunnel::new);
+    }
+
+    //the funnel steps one user has passed
+    private static class FunnelProgress {
+        private boolean logged;
+        private final Map<Integer, Date> firstSolve = new HashMap<>();
+        private final Set<Integer> done = new HashSet<>();
+    }
+}
@@ -14,10 +14,19 @@ public class Solution {
         LogParser logParser = new LogParser(Paths.get("C:\\Users\\Alexey\\Downloads\\JavaRushTasks\\4.JavaCollections\\src\\com\\javarush\\task\\task39\\task3913\\logs"));
         SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
 
+        if (args.length > 0 && args[0].equals("serve")) {
+            new QueryServer(logParser, args.length > 1 ? Integer.parseInt(args[1]) : 8080).start();
+            return;
+        }
+
         BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
         while(true) {
             String query = in.readLine();
             if (query.equals("e")) break;
+            if (query.startsWith("export ")) {
+                logParser.exportChronologically(Paths.get(query.substring("export ".length()).trim()), null, null);
+                continue;
+            }
             Set<Object> set = logParser.execute(query);
             System.out.println(set);
         }
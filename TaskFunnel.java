@@ -0,0 +1,65 @@
+package logs_parser;
+/*
+ * The class contains the LOGIN -> SOLVE_TASK -> DONE_TASK funnel of a single task:
+ * the amounts of users who reached each step in this order and the time they needed
+ * to get the task done after the first attempt to solve it
+ */
+public class TaskFunnel {
+    private final int task;
+    private int loggedUsers;
+    private int solvedUsers;
+    private int doneUsers;
+    private long totalTimeToComplete;
+
+    public TaskFunnel(int task) {
+        this.task = task;
+    }
+
+    public void addSolvedUser() {
+        solvedUsers++;
+    }
+
+    public void addDoneUser(long timeToComplete) {
+        doneUsers++;
+        totalTimeToComplete += timeToComplete;
+    }
+
+    public void setLoggedUsers(int loggedUsers) {
+        this.loggedUsers = loggedUsers;
+    }
+
+    //returns the share of logged users who tried to solve the task
+    public double getSolveConversion() {
+        return loggedUsers == 0 ? 0 : (double) solvedUsers / loggedUsers;
+    }
+
+    //returns the share of users who tried to solve the task and got it done
+    public double getDoneConversion() {
+        return solvedUsers == 0 ? 0 : (double) doneUsers / solvedUsers;
+    }
+
+    //returns the average time in milliseconds between the first attempt to solve the task and getting it done
+    public long getAverageTimeToComplete() {
+        return doneUsers == 0 ? 0 : totalTimeToComplete / doneUsers;
+    }
+
+    public int getTask() {
+        return task;
+    }
+
+    public int getLoggedUsers() {
+        return loggedUsers;
+    }
+
+    public int getSolvedUsers() {
+        return solvedUsers;
+    }
+
+    public int getDoneUsers() {
+        return doneUsers;
+    }
+
+    public long getTotalTimeToComplete() {
+        return totalTimeToComplete;
+    }
+}
@@ -0,0 +1,52 @@
+package logs_parser;
+
+import java.util.Date;
+/*
+ * The class contains a session of a user from a single ip:
+ * consecutive log entries separated by no more than the inactivity gap
+ */
+public class UserSession {
+    private final String user;
+    private final String ip;
+    private final Date start;
+    private Date end;
+    private int eventCount;
+
+    public UserSession(String user, String ip, Date start) {
+        this.user = user;
+        this.ip = ip;
+        this.start = start;
+        this.end = start;
+    }
+
+    //extends the session with the next log entry date
+    public void add(Date date) {
+        end = date;
+        eventCount++;
+    }
+
+    //returns the session length in milliseconds
+    public long getDuration() {
+        return end.getTime() - start.getTime();
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public Date getStart() {
+        return start;
+    }
+
+    public Date getEnd() {
+        return end;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+}
@@ -0,0 +1,34 @@
+package logs_parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/*
+ * The class assigns a dense int id to each distinct string value (ip or user name),
+ * so that sets of values can be accumulated as bitsets
+ */
+public class ValueDictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    //returns the id of the value registering it if necessary
+    public synchronized int getId(String value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    //returns the value by its id
+    public synchronized String getValue(int id) {
+        return values.get(id);
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+}
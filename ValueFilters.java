@@ -0,0 +1,60 @@
+package logs_parser;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+/*
+ * The class contains Bloom filters over ips, user names and task numbers of a file or a partition,
+ * so that a lookup of a single value can skip files and partitions which do not contain it
+ */
+public class ValueFilters {
+    private final BloomFilter ips;
+    private final BloomFilter users;
+    private final BloomFilter tasks;
+
+    private ValueFilters(int expectedIps, int expectedUsers, int expectedTasks) {
+        ips = new BloomFilter(expectedIps);
+        users = new BloomFilter(expectedUsers);
+        tasks = new BloomFilter(expectedTasks);
+    }
+
+    //builds filters over the values of the log entries, each filter is sized
+    //by the amount of distinct values of its own kind
+    public static ValueFilters build(Collection<LogEntry> entries) {
+        BitSet ipIds = new BitSet();
+        BitSet nameIds = new BitSet();
+        Set<Integer> taskNumbers = new HashSet<>();
+        for (LogEntry logEntry : entries) {
+            ipIds.set(logEntry.getIpId());
+            nameIds.set(logEntry.getNameId());
+            if (hasTask(logEntry)) taskNumbers.add(logEntry.getTaskNumber());
+        }
+
+        ValueFilters filters = new ValueFilters(ipIds.cardinality(), nameIds.cardinality(), taskNumbers.size());
+        for (LogEntry logEntry : entries) {
+            filters.ips.add(logEntry.getIp());
+            filters.users.add(logEntry.getName());
+        }
+        for (Integer task : taskNumbers) {
+            filters.tasks.add(task);
+        }
+        return filters;
+    }
+
+    private static boolean hasTask(LogEntry logEntry) {
+        return logEntry.getEvent() == Event.SOLVE_TASK || logEntry.getEvent() == Event.DONE_TASK;
+    }
+
+    public boolean mightContainIp(String ip) {
+        return ips.mightContain(ip);
+    }
+
+    public boolean mightContainUser(String user) {
+        return users.mightContain(user);
+    }
+
+    public boolean mightContainTask(int task) {
+        return tasks.mightContain(task);
+    }
+}
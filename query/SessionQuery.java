@@ -0,0 +1,14 @@
+package logs_parser.query;
+
+import logs_parser.TaskFunnel;
+import logs_parser.UserSession;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface SessionQuery {
+    List<UserSession> getSessions(Date after, Date before, long inactivityGap);
+
+    Map<Integer, TaskFunnel> getTaskFunnels(Date after, Date before);
+}